@@ -4,6 +4,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -16,12 +17,16 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+
 import util.LuceneReadIndexFromFile;
 import util.LuceneWriteIndexFromFile;
 
 /**
  * Searches for a given search term in the given documents and returns a map of the number of times the search term is found in each document, sorted from the highest number to the lowest.
  * The search method can be a simple string search, and indexed search or regular expression string matching.
+ * Typo-tolerant fuzzy searches, within an edit distance of 1 or 2, are run in memory or against the index.
  * @author CE017795
  *
  */
@@ -30,6 +35,20 @@ public class DocumentSearch {
     private static final Random RAND = new Random();
     private static final String TEXTS_DIRECTORY = "./src/main/resources/sampleTexts/";
     private static final String INDEX_DIRECTORY = "./src/main/resources/indexedFiles/";
+    private static final String METHOD_SELECTION_PROMPT = "Select a search method, enter 1 for String Match, 2 for Regular Expression, 3 for Indexed (does not return matches in documents but returns the order of relevance based on index), and 4 for Fuzzy (tolerates typos): ";
+    
+    private final String indexDirectory;
+    
+    public DocumentSearch() {
+        this(INDEX_DIRECTORY);
+    }
+    
+    /**
+     * @param indexDirectory the directory the documents are indexed in
+     */
+    DocumentSearch(final String indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
     
     public static void main(String [] args) throws Exception {
         DocumentSearch docSearch = new DocumentSearch();
@@ -55,16 +74,16 @@ public class DocumentSearch {
             
             documentsByName = docSearch.readFileAsString();
             // pre-process the documents and index them
-            (new LuceneWriteIndexFromFile()).createIndex(TEXTS_DIRECTORY, INDEX_DIRECTORY);
+            docSearch.createIndex();
             
             while (!(searchTerm.equalsIgnoreCase(exitSignal))) {
                 
-                System.out.println("Select a search method, enter 1 for String Match, 2 for Regular Expression, and 3 for Indexed (does not return matches in documents but returns the order of relevance based on index): ");
+                System.out.println(METHOD_SELECTION_PROMPT);
                 String searchMethod = scanner.nextLine();  // Read the preferred search method
                 
-                while (!(searchMethod.equals("1") || searchMethod.equals("2") || searchMethod.equals("3")) && !(searchMethod.equalsIgnoreCase(exitSignal))) {
+                while (!(searchMethod.equals("1") || searchMethod.equals("2") || searchMethod.equals("3") || searchMethod.equals("4")) && !(searchMethod.equalsIgnoreCase(exitSignal))) {
                     System.out.println("Invalid method selection.");
-                    System.out.println("Select a search method, enter 1 for String Match, 2 for Regular Expression, and 3 for Indexed (does not return matches in documents but returns the order of relevance based on index): ");
+                    System.out.println(METHOD_SELECTION_PROMPT);
                     scanner.close();
                     scanner = new Scanner(System.in);
                     searchMethod = scanner.nextLine();
@@ -73,7 +92,19 @@ public class DocumentSearch {
                 if (searchMethod.equalsIgnoreCase(exitSignal))
                     break;
                 
-                docSearch.searchDocument(searchTerm, searchMethod, documentsByName);
+                if (searchMethod.equals("4")) {
+                    System.out.println("Enter the maximum number of typos per word, 1 or 2: ");
+                    String maxEdits = scanner.nextLine();  // Read the edit distance
+                    while (!(maxEdits.equals("1") || maxEdits.equals("2"))) {
+                        System.out.println("Invalid edit distance, enter 1 or 2.");
+                        maxEdits = scanner.nextLine();
+                    }
+                    System.out.println("Would you like to search the index instead of the documents in memory? Yes or No");
+                    final boolean indexed = scanner.nextLine().equalsIgnoreCase("yes");
+                    docSearch.fuzzySearchDocument(searchTerm, Integer.parseInt(maxEdits), indexed, documentsByName);
+                } else {
+                    docSearch.searchDocument(searchTerm, searchMethod, documentsByName);
+                }
                 
                 // then loop until exit
                 System.out.println("Enter a search term or type <exit search> to exit the program: ");
@@ -131,6 +162,44 @@ public class DocumentSearch {
         }
         timeElapsed = endTime - startTime;
         
+        return sortAndPrint(result, timeElapsed, !searchMethod.equals("3"));
+    }
+    
+    /**
+     * Searches the given documents for words within the given edit distance of the search term, either in memory or against the index.
+     * The search term and the documents are split into words on any character that is not a letter or digit, and after
+     * {@link LuceneWriteIndexFromFile#FUZZY_MAX_WORD_LENGTH} chars, then compared ignoring case, so both ways return the same counts.
+     * Each document word is counted at most once, however many words of the search term it is close to.
+     * @param searchTerm the search term, each word of which is matched on its own
+     * @param maxEdits the maximum number of edits (insertions, deletions, substitutions or transpositions), from 1 to 2
+     * @param indexed whether to search the index rather than the documents in memory
+     * @param documentsByName the map of documents by the document name
+     * @return the map of the number of approximate matches, mapped by the document name, and sorted from most relevant to least relevant document
+     * @throws Exception
+     */
+    public Map<String, Integer> fuzzySearchDocument(final String searchTerm, final int maxEdits, final boolean indexed, final Map<String, String> documentsByName) throws Exception {
+        if (maxEdits < 1 || maxEdits > LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+            System.out.println("Invalid edit distance, enter 1 or 2.");
+            return null;
+        }
+        
+        long startTime = 0, endTime = 0, timeElapsed = 0;
+        startTime = System.nanoTime();
+        final Map<String, Integer> result = indexed ? fuzzyIndexMatch(searchTerm, maxEdits, documentsByName) : fuzzyMatch(searchTerm, maxEdits, documentsByName);
+        endTime = System.nanoTime();
+        timeElapsed = endTime - startTime;
+        
+        return sortAndPrint(result, timeElapsed, true);
+    }
+    
+    /**
+     * Sorts the given result according to relevance and prints it
+     * @param result the number of matches mapped by the document name
+     * @param timeElapsed the search time in nanoseconds
+     * @param printMatches whether to print the number of matches next to each document name
+     * @return the result sorted from most relevant to least relevant document
+     */
+    private Map<String, Integer> sortAndPrint(final Map<String, Integer> result, final long timeElapsed, final boolean printMatches) {
         // sort result according to relevance
         final Map<String, Integer> sortedResult = result == null ? new HashMap<>() : result
                 .entrySet()
@@ -142,10 +211,10 @@ public class DocumentSearch {
         
         System.out.println("Search results:");
         for (Entry<String, Integer> entry : sortedResult.entrySet()) {
-            if (searchMethod.equals("3"))
-                System.out.println("\t" + entry.getKey());
-            else
+            if (printMatches)
                 System.out.println("\t" + entry.getKey() + " - " + entry.getValue() + " matches");
+            else
+                System.out.println("\t" + entry.getKey());
         }
         System.out.println("Elapsed time: " + timeElapsed / 1000000 + " ms");
         return sortedResult;
@@ -180,6 +249,24 @@ public class DocumentSearch {
         endTime = System.nanoTime();
         timeElapsed = endTime - startTime;
         System.out.println("Indexed Search took: " + timeElapsed / 1000000 + " ms");
+        
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            final String searchTerm = generateRandomString();
+            fuzzyMatch(searchTerm, 1, documentsByName);
+        }
+        endTime = System.nanoTime();
+        timeElapsed = endTime - startTime;
+        System.out.println("Fuzzy Search took: " + timeElapsed / 1000000 + " ms");
+        
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            final String searchTerm = generateRandomString();
+            fuzzyIndexMatch(searchTerm, 1, documentsByName);
+        }
+        endTime = System.nanoTime();
+        timeElapsed = endTime - startTime;
+        System.out.println("Fuzzy Indexed Search took: " + timeElapsed / 1000000 + " ms");
     }
     
     /**
@@ -265,7 +352,7 @@ public class DocumentSearch {
      */
     private Map<String, Integer> indexMatch(final String searchTerm, final Map<String, String> documentsByName) throws Exception {
         LuceneReadIndexFromFile readIndex = new LuceneReadIndexFromFile();
-        final Map<String, Integer> result = readIndex.searchIndex(searchTerm, INDEX_DIRECTORY);
+        final Map<String, Integer> result = readIndex.searchIndex(searchTerm, indexDirectory);
         for (Entry<String, String> entry : documentsByName.entrySet()) {
             if (!result.containsKey(entry.getKey()))
                 result.put(entry.getKey(), 0);
@@ -273,6 +360,72 @@ public class DocumentSearch {
         return result;
     }
 
+    /**
+     * Counts the words of each document within the given edit distance of any word of the search term, ignoring case.
+     * Documents are split into words code point by code point, by the same rule as {@link LuceneReadIndexFromFile#fuzzyWords(String)}.
+     * Each word is run once through the automaton built by {@link LuceneReadIndexFromFile#fuzzyAutomaton(String, int)}, so the cost is linear in the document length.
+     * @param searchTerm the search term
+     * @param maxEdits the maximum number of edits
+     * @param documentsByName documents keyed by name
+     * @return the number of approximate matches mapped by the document name
+     * @throws Exception
+     */
+    private Map<String, Integer> fuzzyMatch(final String searchTerm, final int maxEdits, final Map<String, String> documentsByName) throws Exception {
+        final CharacterRunAutomaton automaton = new CharacterRunAutomaton(LuceneReadIndexFromFile.fuzzyAutomaton(searchTerm, maxEdits));
+        final Map<String, Integer> result = new HashMap<>();
+        // reused for every word of the search, grown to fit the longest one
+        char[] word = new char[32];
+        
+        for (final Entry<String, String> entry : documentsByName.entrySet()) {
+            final String document = entry.getValue();
+            final int documentLength = document.length();
+            int numberOfMatchings = 0;
+            int wordLength = 0;
+            
+            for (int i = 0; i <= documentLength; ) {
+                final int codePoint = i < documentLength ? document.codePointAt(i) : -1;
+                final boolean letterOrDigit = codePoint >= 0 && Character.isLetterOrDigit(codePoint);
+                if (letterOrDigit) {
+                    // a lower-cased code point takes at most two chars
+                    if (wordLength + 2 > word.length)
+                        word = Arrays.copyOf(word, 2 * word.length);
+                    wordLength += Character.toChars(Character.toLowerCase(codePoint), word, wordLength);
+                }
+                // like the index, end the word at a separator or once it reaches the maximum word length
+                if (wordLength > 0 && (!letterOrDigit || wordLength >= LuceneWriteIndexFromFile.FUZZY_MAX_WORD_LENGTH)) {
+                    if (automaton.run(word, 0, wordLength))
+                        numberOfMatchings++;
+                    wordLength = 0;
+                }
+                i += codePoint >= 0 ? Character.charCount(codePoint) : 1;
+            }
+            result.put(entry.getKey(), numberOfMatchings);
+        }
+        return result;
+    }
+    
+    /**
+     * Uses the Lucene index to count the indexed terms within the given edit distance of the search term
+     * @param searchTerm the search term
+     * @param maxEdits the maximum number of edits
+     * @param documentsByName documents keyed by name
+     * @return the number of approximate matches mapped by the document name
+     * @throws Exception
+     */
+    private Map<String, Integer> fuzzyIndexMatch(final String searchTerm, final int maxEdits, final Map<String, String> documentsByName) throws Exception {
+        LuceneReadIndexFromFile readIndex = new LuceneReadIndexFromFile();
+        final Map<String, Integer> result = readIndex.fuzzySearchIndex(searchTerm, maxEdits, indexDirectory);
+        for (Entry<String, String> entry : documentsByName.entrySet()) {
+            if (!result.containsKey(entry.getKey()))
+                result.put(entry.getKey(), 0);
+        }
+        return result;
+    }
+
+    void createIndex() {
+        (new LuceneWriteIndexFromFile()).createIndex(TEXTS_DIRECTORY, indexDirectory);
+    }
+
     Map<String, String> readFileAsString()throws Exception {
         final List<String> documentNames = new ArrayList<>();
         final Map<String, String> documentsByName = new HashMap<>();
@@ -2,20 +2,36 @@ package util;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+import org.apache.lucene.util.automaton.Operations;
 
 /**
  * Reads the indexed files and returns search result.
@@ -25,6 +41,8 @@ import org.apache.lucene.store.FSDirectory;
  */
 public class LuceneReadIndexFromFile {
     
+    private static final Analyzer FUZZY_ANALYZER = LuceneWriteIndexFromFile.fuzzyAnalyzer();
+    
     public Map<String, Integer> searchIndex(final String searchTerm, final String indexDirectory) throws Exception {
       //Create lucene searcher. It search over a single IndexReader.
         IndexSearcher searcher = createSearcher(indexDirectory);
@@ -36,14 +54,93 @@ public class LuceneReadIndexFromFile {
         //Let's print out the path of files which have searched term
         for (ScoreDoc sd : foundDocs.scoreDocs) {
             Document d = searcher.doc(sd.doc);
-            final String documentPath = d.get("path");
-            final int index = documentPath.lastIndexOf('\\');
-            final String fileName = documentPath.substring(index + 1);
-            result.put(fileName, Math.round(sd.score));
+            result.put(fileName(d.get("path")), Math.round(sd.score));
         }
         return result;
     }
     
+    /**
+     * Splits the given text into the lower-cased letter and digit words of the fuzzy field
+     * @param text the text to split
+     * @return the words, in order
+     * @throws IOException
+     */
+    public static List<String> fuzzyWords(final String text) throws IOException {
+        final List<String> words = new ArrayList<>();
+        try (TokenStream stream = FUZZY_ANALYZER.tokenStream(LuceneWriteIndexFromFile.FUZZY_FIELD, text)) {
+            final CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken())
+                words.add(term.toString());
+            stream.end();
+        }
+        return words;
+    }
+    
+    /**
+     * Builds a deterministic automaton accepting every word within the given edit distance of any word of the search term.
+     * The Levenshtein automata of the words are unioned, so a word close to several of them, or to a repeated one, is accepted once.
+     * @param searchTerm the search term, split with {@link #fuzzyWords(String)}
+     * @param maxEdits the maximum number of edits, from 1 to 2
+     * @return the automaton, accepting nothing if the search term has no words
+     * @throws IOException
+     */
+    public static Automaton fuzzyAutomaton(final String searchTerm, final int maxEdits) throws IOException {
+        final List<Automaton> automata = new ArrayList<>();
+        for (final String word : fuzzyWords(searchTerm))
+            automata.add(new LevenshteinAutomata(word, true).toAutomaton(maxEdits));
+        return Operations.determinize(Operations.union(automata), Operations.DEFAULT_MAX_DETERMINIZED_STATES);
+    }
+    
+    /**
+     * Counts the indexed words within the given edit distance of any word of the search term, per document, ignoring case.
+     * Both the search term and the documents are split into words with {@link #fuzzyWords(String)}, and each indexed word is counted once.
+     * @param searchTerm the search term
+     * @param maxEdits the maximum number of edits (insertions, deletions, substitutions or transpositions), from 1 to 2
+     * @param indexDirectory the directory of the index
+     * @return the number of approximate matches mapped by the document name, for the documents with at least one match
+     * @throws IOException
+     */
+    public Map<String, Integer> fuzzySearchIndex(final String searchTerm, final int maxEdits, final String indexDirectory) throws IOException {
+        if (maxEdits < 1 || maxEdits > LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE)
+            throw new IllegalArgumentException("maxEdits must be between 1 and " + LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE + ": " + maxEdits);
+        
+        final Map<Integer, Integer> countsByDocId = new HashMap<>();
+        final Map<String, Integer> result = new HashMap<>();
+        try (Directory dir = FSDirectory.open(Paths.get(indexDirectory));
+                IndexReader reader = DirectoryReader.open(dir)) {
+            //Intersect the Levenshtein automaton with the term dictionary so only the terms within the edit distance are visited
+            final CompiledAutomaton automaton = new CompiledAutomaton(fuzzyAutomaton(searchTerm, maxEdits));
+            for (LeafReaderContext context : reader.leaves()) {
+                final LeafReader leafReader = context.reader();
+                final Terms terms = leafReader.terms(LuceneWriteIndexFromFile.FUZZY_FIELD);
+                if (terms == null)
+                    continue;
+                final Bits liveDocs = leafReader.getLiveDocs();
+                final TermsEnum termsEnum = automaton.getTermsEnum(terms);
+                PostingsEnum postings = null;
+                while (termsEnum.next() != null) {
+                    postings = termsEnum.postings(postings, PostingsEnum.FREQS);
+                    for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                        //Skip documents replaced by a later updateDocument call
+                        if (liveDocs == null || liveDocs.get(doc))
+                            countsByDocId.merge(context.docBase + doc, postings.freq(), Integer::sum);
+                    }
+                }
+            }
+            
+            for (Map.Entry<Integer, Integer> entry : countsByDocId.entrySet()) {
+                result.merge(fileName(reader.document(entry.getKey()).get("path")), entry.getValue(), Integer::sum);
+            }
+        }
+        return result;
+    }
+    
+    private static String fileName(final String documentPath) {
+        //Strip the directories with the separator of the current platform, rather than assuming a backslash
+        return Paths.get(documentPath).getFileName().toString();
+    }
+    
     private static TopDocs searchInContent(String textToFind, IndexSearcher searcher) throws Exception {
         //Create search query
         QueryParser qp = new QueryParser("contents", new WhitespaceAnalyzer());
@@ -8,9 +8,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.util.CharTokenizer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
@@ -31,6 +36,28 @@ import org.apache.lucene.store.FSDirectory;
  *
  */
 public class LuceneWriteIndexFromFile {
+    
+    /** The field holding the lower-cased letter and digit words of the contents, used by fuzzy searches */
+    public static final String FUZZY_FIELD = "contents_fuzzy";
+    
+    /** The length in chars after which the fuzzy analyzer splits a word, the default of {@link CharTokenizer} */
+    public static final int FUZZY_MAX_WORD_LENGTH = CharTokenizer.DEFAULT_MAX_WORD_LEN;
+    
+    /**
+     * Creates the analyzer of the fuzzy field, which splits on any code point that is not a letter or digit and lower-cases the words.
+     * Words longer than {@link #FUZZY_MAX_WORD_LENGTH} chars are split into several words.
+     * @return the analyzer
+     */
+    public static Analyzer fuzzyAnalyzer() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = CharTokenizer.fromTokenCharPredicate(Character::isLetterOrDigit);
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+        };
+    }
+    
     public void createIndex(final String textsPath, final String indexPath) {
         //Input Path Variable
         final Path docDir = Paths.get(textsPath);
@@ -38,8 +65,8 @@ public class LuceneWriteIndexFromFile {
         try (Directory dir = FSDirectory.open( Paths.get(indexPath) )) {
             //org.apache.lucene.store.Directory instance
              
-            //analyzer with the default stop words
-            Analyzer analyzer = new WhitespaceAnalyzer();
+            //analyzer with the default stop words, and the fuzzy analyzer for the fuzzy field
+            Analyzer analyzer = new PerFieldAnalyzerWrapper(new WhitespaceAnalyzer(), Collections.singletonMap(FUZZY_FIELD, fuzzyAnalyzer()));
              
             //IndexWriter Configuration
             IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
@@ -90,7 +117,9 @@ public class LuceneWriteIndexFromFile {
              
             doc.add(new StringField("path", file.toString(), Field.Store.YES));
             doc.add(new LongPoint("modified", lastModified));
-            doc.add(new TextField("contents", new String(Files.readAllBytes(file)), Store.YES));
+            final String contents = new String(Files.readAllBytes(file));
+            doc.add(new TextField("contents", contents, Store.YES));
+            doc.add(new TextField(FUZZY_FIELD, contents, Store.NO));
              
             //Updates a document by first deleting the document(s)
             //containing <code>term</code> and then adding the new
@@ -4,22 +4,39 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import util.LuceneWriteIndexFromFile;
+
 public class DocumentSearchTest {
     
-    private static final DocumentSearch DOCUMENT_SEARCH = new DocumentSearch();
     private static final String TEXTS_DIRECTORY_TEST = "./src/test/resources/sampleTexts/";
-    private static final String INDEX_DIRECTORY_TEST = "./src/test/resources/indexedFiles/";
+    private static final Path INDEX_DIRECTORY_TEST = createTempDirectory();
+    private static final DocumentSearch DOCUMENT_SEARCH = new DocumentSearch(INDEX_DIRECTORY_TEST.toString());
     private static Map<String, String> documentsByName;
     
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("indexedFiles");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     @BeforeAll
     public static void beforeAll() throws Exception {
      // modify texts directory
@@ -32,14 +49,14 @@ public class DocumentSearchTest {
         
         directoryField.set(DOCUMENT_SEARCH, TEXTS_DIRECTORY_TEST);
         
-        // modify index directory
-        Field indexDirectoryField = DocumentSearch.class.getDeclaredField("INDEX_DIRECTORY");
-        indexDirectoryField.setAccessible(true);
-        
-        modifiersField.setInt(indexDirectoryField, indexDirectoryField.getModifiers() & ~Modifier.FINAL);
-        
-        indexDirectoryField.set(DOCUMENT_SEARCH, INDEX_DIRECTORY_TEST);
         documentsByName = DOCUMENT_SEARCH.readFileAsString();
+        // index the test documents in the temporary index directory
+        (new LuceneWriteIndexFromFile()).createIndex(TEXTS_DIRECTORY_TEST, INDEX_DIRECTORY_TEST.toString());
+    }
+    
+    @AfterAll
+    public static void afterAll() throws Exception {
+        FileUtils.deleteDirectory(INDEX_DIRECTORY_TEST.toFile());
     }
     
     @Test
@@ -189,6 +206,112 @@ public class DocumentSearchTest {
         assertTrue("warp_drive.txt".equals(entry.getKey()));
     }
     
+    @Test
+    public void testFuzzyMatching() throws Exception {
+        Map<String, Integer> result = DOCUMENT_SEARCH.fuzzySearchDocument("wrap", 1, false, documentsByName);
+        assertEquals(3, result.size());
+        Iterator<Entry<String, Integer>> iterator = result.entrySet().iterator();
+        Entry<String, Integer> entry = iterator.next();
+        assertTrue("warp_drive.txt".equals(entry.getKey()));
+        assertEquals(6, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertTrue("hitchhikers.txt".equals(entry.getKey()));
+        assertEquals(0, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertTrue("french_armed_forces.txt".equals(entry.getKey()));
+        assertEquals(0, entry.getValue().intValue());
+        
+        // test a term two edits away
+        result = DOCUMENT_SEARCH.fuzzySearchDocument("Europaen", 2, false, documentsByName);
+        assertEquals(3, result.size());
+        iterator = result.entrySet().iterator();
+        entry = iterator.next();
+        assertTrue("french_armed_forces.txt".equals(entry.getKey()));
+        assertEquals(8, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertEquals(0, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertEquals(0, entry.getValue().intValue());
+    }
+    
+    @Test
+    public void testFuzzyMatching_surrogatePairs() throws Exception {
+        // gothic letters are outside the Basic Multilingual Plane
+        final Map<String, String> gothicDocuments = Collections.singletonMap("gothic.txt", "\uD800\uDF30\uD800\uDF31\uD800\uDF32 and \uD800\uDF30\uD800\uDF31\uD800\uDF33.");
+        Map<String, Integer> result = DOCUMENT_SEARCH.fuzzySearchDocument("\uD800\uDF30\uD800\uDF31\uD800\uDF32", 1, false, gothicDocuments);
+        assertEquals(2, result.get("gothic.txt").intValue());
+    }
+    
+    @Test
+    public void testFuzzyIndexMatching() throws Exception {
+        Map<String, Integer> result = DOCUMENT_SEARCH.fuzzySearchDocument("wrap", 1, true, documentsByName);
+        assertEquals(3, result.size());
+        Iterator<Entry<String, Integer>> iterator = result.entrySet().iterator();
+        Entry<String, Integer> entry = iterator.next();
+        assertTrue("warp_drive.txt".equals(entry.getKey()));
+        assertEquals(6, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertEquals(0, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertEquals(0, entry.getValue().intValue());
+        
+        // test a term two edits away
+        result = DOCUMENT_SEARCH.fuzzySearchDocument("Europaen", 2, true, documentsByName);
+        assertEquals(3, result.size());
+        iterator = result.entrySet().iterator();
+        entry = iterator.next();
+        assertTrue("french_armed_forces.txt".equals(entry.getKey()));
+        assertEquals(8, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertEquals(0, entry.getValue().intValue());
+        
+        entry = iterator.next();
+        assertEquals(0, entry.getValue().intValue());
+    }
+    
+    @Test
+    public void testFuzzyMatching_sameCountsInMemoryAndIndexed() throws Exception {
+        assertEquals(DOCUMENT_SEARCH.fuzzySearchDocument("wrap", 1, false, documentsByName),
+                DOCUMENT_SEARCH.fuzzySearchDocument("wrap", 1, true, documentsByName));
+        assertEquals(DOCUMENT_SEARCH.fuzzySearchDocument("Europaen", 2, false, documentsByName),
+                DOCUMENT_SEARCH.fuzzySearchDocument("Europaen", 2, true, documentsByName));
+        assertEquals(DOCUMENT_SEARCH.fuzzySearchDocument("drvie warp-drvie", 1, false, documentsByName),
+                DOCUMENT_SEARCH.fuzzySearchDocument("drvie warp-drvie", 1, true, documentsByName));
+    }
+    
+    @Test
+    public void testFuzzyMatching_repeatedWords() throws Exception {
+        // a document word close to several words of the search term is counted once
+        for (final boolean indexed : new boolean[] { false, true }) {
+            assertEquals(7, DOCUMENT_SEARCH.fuzzySearchDocument("drive", 1, indexed, documentsByName).get("warp_drive.txt").intValue());
+            assertEquals(7, DOCUMENT_SEARCH.fuzzySearchDocument("drive drive", 1, indexed, documentsByName).get("warp_drive.txt").intValue());
+            assertEquals(7, DOCUMENT_SEARCH.fuzzySearchDocument("drvie drive", 1, indexed, documentsByName).get("warp_drive.txt").intValue());
+            assertEquals(14, DOCUMENT_SEARCH.fuzzySearchDocument("drvie warp-drvie", 1, indexed, documentsByName).get("warp_drive.txt").intValue());
+        }
+    }
+    
+    @Test
+    public void testFuzzyMatching_longWords() throws Exception {
+        // words are split after the maximum word length of the index
+        final String longWord = String.join("", Collections.nCopies(LuceneWriteIndexFromFile.FUZZY_MAX_WORD_LENGTH + 3, "a"));
+        final Map<String, String> longDocuments = Collections.singletonMap("long.txt", longWord + " aaa");
+        Map<String, Integer> result = DOCUMENT_SEARCH.fuzzySearchDocument("aab", 1, false, longDocuments);
+        assertEquals(2, result.get("long.txt").intValue());
+    }
+    
+    @Test
+    public void testInvalidEditDistance() throws Exception {
+        assertNull(DOCUMENT_SEARCH.fuzzySearchDocument("warp", 0, false, documentsByName));
+        assertNull(DOCUMENT_SEARCH.fuzzySearchDocument("warp", 3, true, documentsByName));
+    }
+    
     @Test
     public void testInvalidSearchMethod() throws Exception {
         assertNull(DOCUMENT_SEARCH.searchDocument("warp", "4", documentsByName));